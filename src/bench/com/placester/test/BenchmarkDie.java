@@ -0,0 +1,20 @@
+package com.placester.test;
+
+/**
+ * WeightedDie with any number of sides, for benchmarks.
+ */
+class BenchmarkDie extends WeightedDie
+{
+	BenchmarkDie(float[] weights, boolean concurrent) {
+		super(weights, concurrent);
+	}
+
+	BenchmarkDie(float[] weights, long seed) {
+		super(weights, seed);
+	}
+
+	@Override
+	public float getChiSquareForLargeSample() {
+		return (float)GoodnessOfFitMonitor.criticalValue(getNumberOfSides() - 1, 0.05);
+	}
+}
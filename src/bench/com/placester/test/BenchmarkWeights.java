@@ -0,0 +1,55 @@
+package com.placester.test;
+
+/**
+ * Weights for benchmark dice of any size. WeightedDie requires float weights adding 
+ * up to exactly 1f, so the weights are whole multiples of 2^-24: every partial sum is 
+ * then exactly representable as a float and the sum comes out as exactly 1f.
+ */
+final class BenchmarkWeights
+{
+	private static final int UNITS = 1 << 24;
+
+	private BenchmarkWeights() {
+	}
+
+	/**
+	 * @param sides Number of sides, at most 2^24.
+	 * @param skewed If false all sides weigh the same, if true side i weighs about 
+	 * 	1/i^1.5 (Zipf), so the first few sides take most of the throws.
+	 * @return Weights in units of 2^-24, each at least 1, adding to 2^24.
+	 */
+	static long[] units(int sides, boolean skewed) {
+		if (sides < 1 || sides > UNITS) {
+			throw new IllegalArgumentException("Number of sides should be between 1 and " + UNITS + ", not " + sides);
+		}
+		double[] shares = new double[sides];
+		double sumOfShares = 0;
+		for (int i = 0; i < sides; i++) {
+			shares[i] = skewed ? Math.pow(i + 1, -1.5) : 1.0;
+			sumOfShares += shares[i];
+		}
+
+		// every side gets one unit, the rest is shared out, the rounding goes to side 1
+		long[] units = new long[sides];
+		long rest = UNITS - sides;
+		long assigned = 0;
+		for (int i = 0; i < sides; i++) {
+			units[i] = 1 + (long)Math.floor(rest * shares[i] / sumOfShares);
+			assigned += units[i];
+		}
+		units[0] += UNITS - assigned;
+		return units;
+	}
+
+	/**
+	 * @return Same weights as units(), as probabilities for WeightedDie.
+	 */
+	static float[] probabilities(int sides, boolean skewed) {
+		long[] units = units(sides, skewed);
+		float[] weights = new float[sides];
+		for (int i = 0; i < sides; i++) {
+			weights[i] = units[i] / (float)UNITS;
+		}
+		return weights;
+	}
+}
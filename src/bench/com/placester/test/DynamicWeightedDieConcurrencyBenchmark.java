@@ -0,0 +1,49 @@
+package com.placester.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Throughput of one DynamicWeightedDie shared by all benchmark threads. Throws only 
+ * take an optimistic read and should scale with the number of threads. Runs on all 
+ * cores by default, sweep the thread count with -t 1, -t 2, ... to see the scaling.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class DynamicWeightedDieConcurrencyBenchmark
+{
+	@Param({"6", "1000000"})
+	private int sides;
+
+	@Param({"uniform", "skewed"})
+	private String distribution;
+
+	private DynamicWeightedDie die;
+
+	@Setup
+	public void setUp() {
+		die = new DynamicWeightedDie(BenchmarkWeights.units(sides, "skewed".equals(distribution)));
+	}
+
+	@Benchmark
+	public int throwDie() {
+		return die.throwDie();
+	}
+}
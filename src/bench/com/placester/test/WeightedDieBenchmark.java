@@ -0,0 +1,117 @@
+package com.placester.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Single-threaded cost of the sampling paths, per throw, across die sizes and weight 
+ * distributions. throwDie() boxes a Float and binary searches the Comparable sides, 
+ * throwDice() and sampleCounts() go through the primitive bounds, and the dynamic die 
+ * walks its Fenwick tree. Run with -prof gc to see the allocation rate of each path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WeightedDieBenchmark
+{
+	private static final int BATCH = 1024;
+	private static final int DISTINCT = 16;
+
+	@Param({"6", "1000", "1000000"})
+	private int sides;
+
+	@Param({"uniform", "skewed"})
+	private String distribution;
+
+	private WeightedDie die;
+	private WeightedDie monitoredDie;
+	private DynamicWeightedDie dynamicDie;
+	private long[] units;
+	private int[] dest;
+	private int nextSide;
+
+	@Setup
+	public void setUp() {
+		boolean skewed = "skewed".equals(distribution);
+		die = new BenchmarkDie(BenchmarkWeights.probabilities(sides, skewed), false);
+		monitoredDie = new BenchmarkDie(BenchmarkWeights.probabilities(sides, skewed), false);
+		monitoredDie.setMonitor(new GoodnessOfFitMonitor(monitoredDie, 0.001));
+		units = BenchmarkWeights.units(sides, skewed);
+		dynamicDie = new DynamicWeightedDie(units);
+		dest = new int[BATCH];
+		nextSide = 1;
+	}
+
+	@Benchmark
+	public int throwDie() {
+		return die.throwDie();
+	}
+
+	@Benchmark
+	public int throwDieMonitored() {
+		return monitoredDie.throwDie();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int[] throwDice() {
+		die.throwDice(dest, 0, BATCH);
+		return dest;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int throwStream() {
+		return die.throwStream().limit(BATCH).sum();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public long[] sampleCountsBatch() {
+		return die.sampleCounts(BATCH);
+	}
+
+	// Per throw cost of a histogram large enough for the multinomial path
+	@Benchmark
+	@OperationsPerInvocation(1 << 30)
+	public long[] sampleCountsMultinomial() {
+		return die.sampleCounts(1 << 30);
+	}
+
+	@Benchmark
+	public int[] sampleDistinct() {
+		return die.sampleDistinct(Math.min(DISTINCT, sides));
+	}
+
+	@Benchmark
+	public int dynamicThrowDie() {
+		return dynamicDie.throwDie();
+	}
+
+	@Benchmark
+	public void dynamicSetWeight() {
+		int side = nextSide;
+		dynamicDie.setWeight(side, units[side - 1]);
+		nextSide = side == sides ? 1 : side + 1;
+	}
+
+	@Benchmark
+	public int[] dynamicSampleDistinct() {
+		return dynamicDie.sampleDistinct(Math.min(DISTINCT, sides));
+	}
+}
@@ -0,0 +1,69 @@
+package com.placester.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Throughput of one die shared by all benchmark threads. A die with a shared Random
+ * contends on its seed, a concurrent die draws from ThreadLocalRandom and should scale
+ * with the number of threads. Runs on all cores by default, sweep the thread count 
+ * with -t 1, -t 2, ... to see the scaling.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class WeightedDieConcurrencyBenchmark
+{
+	private static final int BATCH = 1024;
+
+	@Param({"6", "1000000"})
+	private int sides;
+
+	@Param({"uniform", "skewed"})
+	private String distribution;
+
+	@Param({"false", "true"})
+	private boolean concurrent;
+
+	private WeightedDie die;
+
+	@State(Scope.Thread)
+	public static class Batch {
+		private final int[] dest = new int[BATCH];
+	}
+
+	@Setup
+	public void setUp() {
+		boolean skewed = "skewed".equals(distribution);
+		die = new BenchmarkDie(BenchmarkWeights.probabilities(sides, skewed), concurrent);
+	}
+
+	@Benchmark
+	public int throwDie() {
+		return die.throwDie();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int[] throwDice(Batch batch) {
+		die.throwDice(batch.dest, 0, BATCH);
+		return batch.dest;
+	}
+}
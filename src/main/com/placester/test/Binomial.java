@@ -0,0 +1,112 @@
+package com.placester.test;
+
+import java.util.Random;
+
+/**
+ * Binomial random variates, used to draw histograms without drawing every sample.
+ * Small means are drawn by inversion (counting geometric gaps between successes), 
+ * large means by Hormann's BTRS algorithm, transformed rejection with squeeze ("The
+ * generation of binomial random variates", 1993), which takes a constant expected
+ * number of draws.
+ */
+final class Binomial
+{
+	// Below this mean inversion is cheaper than BTRS, and BTRS is not valid.
+	private static final double INVERSION_THRESHOLD = 10.0;
+
+	// log(k!) - [(k + 1/2) log(k + 1) - (k + 1) + log(2 pi)/2] for k = 0..9
+	private static final double[] STIRLING_TAIL = {
+		0.0810614667953272, 0.0413406959554092, 0.0276779256849983, 
+		0.02079067210376509, 0.0166446911898211, 0.0138761288230707, 
+		0.0118967099458917, 0.0104112652619720, 0.00925546218271273, 
+		0.00833056343336287 
+	};
+
+	private Binomial() {
+	}
+
+	/**
+	 * @param rng Generator to draw from.
+	 * @param n Number of trials.
+	 * @param p Probability of success of a single trial.
+	 * @return Number of successes in n trials.
+	 */
+	static long sample(Random rng, long n, double p) {
+		if (n == 0 || p <= 0) {
+			return 0;
+		}
+		if (p >= 1) {
+			return n;
+		}
+		if (p > 0.5) {
+			return n - sample(rng, n, 1 - p);
+		}
+		if (n * p < INVERSION_THRESHOLD) {
+			return inversion(rng, n, p);
+		}
+		return btrs(rng, n, p);
+	}
+
+	private static long inversion(Random rng, long n, double p) {
+		double logQ = Math.log1p(-p);
+		double trials = 0;
+		long successes = 0;
+		while (true) {
+			// trials up to and including the next success
+			trials += Math.max(1.0, Math.ceil(Math.log(1.0 - rng.nextDouble()) / logQ));
+			if (trials > n) {
+				return successes;
+			}
+			successes++;
+		}
+	}
+
+	/**
+	 * Requires p <= 0.5 and n * p >= 10.
+	 */
+	private static long btrs(Random rng, long n, double p) {
+		double q = 1 - p;
+		double spq = Math.sqrt(n * p * q);
+		double b = 1.15 + 2.53 * spq;
+		double a = -0.0873 + 0.0248 * b + 0.01 * p;
+		double c = n * p + 0.5;
+		double vr = 0.92 - 4.2 / b;
+		double alpha = (2.83 + 5.1 / b) * spq;
+		double r = p / q;
+		double m = Math.floor((n + 1) * p);
+
+		while (true) {
+			double u = rng.nextDouble() - 0.5;
+			double v = rng.nextDouble();
+			double us = 0.5 - Math.abs(u);
+			double k = Math.floor((2 * a / us + b) * u + c);
+
+			// Fast acceptance inside the triangle under the hat
+			if (us >= 0.07 && v <= vr) {
+				return (long)k;
+			}
+			if (k < 0 || k > n) {
+				continue;
+			}
+
+			// Accept against the log of the exact probability ratio f(k)/f(m)
+			v = Math.log(v * alpha / (a / (us * us) + b));
+			double bound = (m + 0.5) * Math.log((m + 1) / (r * (n - m + 1)))
+					+ (n + 1) * Math.log((n - m + 1) / (n - k + 1))
+					+ (k + 0.5) * Math.log(r * (n - k + 1) / (k + 1))
+					+ stirlingTail(m) + stirlingTail(n - m) 
+					- stirlingTail(k) - stirlingTail(n - k);
+			if (v <= bound) {
+				return (long)k;
+			}
+		}
+	}
+
+	private static double stirlingTail(double k) {
+		if (k < STIRLING_TAIL.length) {
+			return STIRLING_TAIL[(int)k];
+		}
+		double kp1sq = (k + 1) * (k + 1);
+		return (1.0 / 12 - (1.0 / 360 - 1.0 / 1260 / kp1sq) / kp1sq) / (k + 1);
+	}
+}
@@ -0,0 +1,230 @@
+package com.placester.test;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.StampedLock;
+
+/*
+ * A die whose weights can change while it is being thrown. Unlike WeightedDie the 
+ * weights are unnormalised longs, so any non-negative weights will do and a side's 
+ * probability is its weight over the total weight.
+ * 
+ * The weights are kept in a Fenwick (binary indexed) tree of prefix sums, so both 
+ * setWeight() and throwDie() take O(log n) for n sides.
+ * 
+ * Throws only read the tree, so they run concurrently under an optimistic read of a 
+ * StampedLock and retry under the read lock if a writer got in the way. Changing the 
+ * weights and sampleDistinct() take the write lock.
+ */
+public class DynamicWeightedDie
+{
+	private final long[] weights;
+	// tree[i] holds the sum of weights (i - (i & -i), i], 1-based
+	private final long[] tree;
+	private long totalWeight;
+	private final StampedLock lock = new StampedLock();
+	
+	/**
+	 * Create a die with all weights 0.
+	 * @param numberOfSides Number of sides.
+	 */
+	public DynamicWeightedDie(int numberOfSides) {
+		if (numberOfSides <= 0) {
+			throw new IllegalArgumentException("Number of sides should be positive, not " + numberOfSides);
+		}
+		weights = new long[numberOfSides];
+		tree = new long[numberOfSides + 1];
+	}
+
+	/**
+	 * @param weights Initial side weights, element i holds the weight of side i+1.
+	 */
+	public DynamicWeightedDie(long[] weights) {
+		if (weights == null) {
+			throw new IllegalArgumentException("Weights cannot be null.");
+		}
+		if (weights.length == 0) {
+			throw new IllegalArgumentException("Number of sides should be positive, not 0");
+		}
+		this.weights = new long[weights.length];
+		this.tree = new long[weights.length + 1];
+		
+		// Build the tree in place in O(n), pushing each node's sum to its parent
+		for (int i = 0; i < weights.length; i++) {
+			checkWeight(weights[i]);
+			this.weights[i] = weights[i];
+			totalWeight = addWeights(totalWeight, weights[i]);
+			tree[i + 1] += weights[i];
+			int parent = (i + 1) + ((i + 1) & -(i + 1));
+			if (parent < tree.length) {
+				tree[parent] += tree[i + 1];
+			}
+		}
+	}
+
+	public int getNumberOfSides() {
+		return weights.length;
+	}
+
+	public long getWeight(int side) {
+		checkSide(side);
+		long stamp = lock.readLock();
+		try {
+			return weights[side - 1];
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	public long getTotalWeight() {
+		long stamp = lock.readLock();
+		try {
+			return totalWeight;
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Change the weight of a side, in O(log n).
+	 * @param side Side, from 1 to the number of sides.
+	 * @param weight New weight, 0 to never throw the side.
+	 */
+	public void setWeight(int side, long weight) {
+		checkSide(side);
+		checkWeight(weight);
+		long stamp = lock.writeLock();
+		try {
+			long delta = weight - weights[side - 1];
+			totalWeight = addWeights(totalWeight, delta);
+			weights[side - 1] = weight;
+			updateTree(side, delta);
+		}
+		finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Throw the die, in O(log n).
+	 * @return Side thrown, from 1 to the number of sides.
+	 */
+	public int throwDie() {
+		ThreadLocalRandom rng = ThreadLocalRandom.current();
+		
+		// Optimistic read, the side found is only good if no writer came in meanwhile
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			long total = totalWeight;
+			int side = total > 0 ? findSide(rng.nextLong(total)) : 0;
+			if (lock.validate(stamp)) {
+				return checkThrown(side);
+			}
+		}
+
+		stamp = lock.readLock();
+		try {
+			long total = totalWeight;
+			return checkThrown(total > 0 ? findSide(rng.nextLong(total)) : 0);
+		}
+		finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Draw k distinct sides, each draw weighted among the sides not drawn yet. 
+	 * Drawn sides are taken out of the tree while drawing and put back afterwards,
+	 * so this takes O(k log n).
+	 * @param k Number of sides to draw.
+	 * @return Sides drawn, in the order they were drawn.
+	 */
+	public int[] sampleDistinct(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Number of sides to draw cannot be negative.");
+		}
+		if (k > weights.length) {
+			throw new IllegalArgumentException("Cannot draw " + k + " distinct sides of " + weights.length);
+		}
+		int[] result = new int[k];
+		ThreadLocalRandom rng = ThreadLocalRandom.current();
+		long stamp = lock.writeLock();
+		long remainingWeight = totalWeight;
+		int drawn = 0;
+		try {
+			for (; drawn < k; drawn++) {
+				if (remainingWeight == 0) {
+					throw new IllegalArgumentException("Cannot draw " + k 
+							+ " distinct sides, only " + drawn + " have non-zero weight.");
+				}
+				int side = findSide(rng.nextLong(remainingWeight));
+				result[drawn] = side;
+				remainingWeight -= weights[side - 1];
+				updateTree(side, -weights[side - 1]);
+			}
+		}
+		finally {
+			for (int i = 0; i < drawn; i++) {
+				updateTree(result[i], weights[result[i] - 1]);
+			}
+			lock.unlockWrite(stamp);
+		}
+		return result;
+	}
+
+	/**
+	 * Find the side whose range of cumulative weight contains target, walking down
+	 * the tree from the largest power of two.
+	 * @param target Value in [0, totalWeight).
+	 * @return First side whose cumulative weight is greater than target.
+	 */
+	private int findSide(long target) {
+		int pos = 0;
+		for (int step = Integer.highestOneBit(weights.length); step > 0; step >>= 1) {
+			int next = pos + step;
+			if (next < tree.length && tree[next] <= target) {
+				pos = next;
+				target -= tree[next];
+			}
+		}
+		return pos + 1;
+	}
+
+	/**
+	 * @param side Side thrown, 0 if all weights were 0.
+	 */
+	private static int checkThrown(int side) {
+		if (side == 0) {
+			throw new IllegalStateException("Cannot throw a die with all weights 0.");
+		}
+		return side;
+	}
+
+	private void updateTree(int side, long delta) {
+		for (int i = side; i < tree.length; i += i & -i) {
+			tree[i] += delta;
+		}
+	}
+
+	private void checkSide(int side) {
+		if (side < 1 || side > weights.length) {
+			throw new IllegalArgumentException("Side should be between 1 and " + weights.length + ", not " + side);
+		}
+	}
+
+	private static void checkWeight(long weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("Weights cannot be negative.");
+		}
+	}
+
+	private static long addWeights(long a, long b) {
+		try {
+			return Math.addExact(a, b);
+		}
+		catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Total weight cannot exceed " + Long.MAX_VALUE);
+		}
+	}
+}
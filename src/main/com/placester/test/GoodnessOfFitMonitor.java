@@ -0,0 +1,312 @@
+package com.placester.test;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Checks that a die keeps throwing the distribution it was configured with. 
+ * Attach it with WeightedDie.setMonitor(), or call record() with every side thrown.
+ * 
+ * Recording a throw is a single increment of a striped counter (LongAdder), so threads
+ * throwing concurrently don't contend. The statistics are evaluated only when asked 
+ * for, in one pass over the counters and without allocating, e.g. from a scheduled task 
+ * calling check(). Counts keep accumulating until reset(); resetting after each check 
+ * tests windows of recent throws instead of all throws since the start.
+ */
+public class GoodnessOfFitMonitor
+{
+	// Below this expected count on some side the chi-square approximation doesn't hold
+	private static final double MIN_EXPECTED_COUNT = 5.0;
+	
+	private static final double EPSILON = 1e-15;
+	// Iterations of the bisection, and the least allowed for the gamma series and fraction
+	private static final int MAX_ITERATIONS = 1000;
+	// Near x = a the gamma series and fraction need O(sqrt(a)) terms, about 8.4 sqrt(a) 
+	// to get to EPSILON, on top of MAX_ITERATIONS
+	private static final double ITERATIONS_PER_SQRT_A = 20;
+	private static final double[] LANCZOS_COEFFICIENTS = {
+		76.18009172947146, -86.50532032941677, 24.01409824083091,
+		-1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5
+	};
+
+	private final double[] probabilities;
+	private final LongAdder[] counts;
+	private final double significance;
+	private final double criticalValue;
+	private final double minProbability;
+	private volatile boolean drifting;
+
+	/**
+	 * @param die Die whose weights the throws are checked against.
+	 * @param significance Probability of flagging drift when there is none, e.g. 0.001.
+	 */
+	public GoodnessOfFitMonitor(WeightedDie die, double significance) {
+		this(probabilitiesOf(die), significance);
+	}
+
+	/**
+	 * @param weights Expected side weights, element i for side i+1. Don't need to add
+	 * 	to 1, at least two should be positive.
+	 * @param significance Probability of flagging drift when there is none, e.g. 0.001.
+	 */
+	public GoodnessOfFitMonitor(double[] weights, double significance) {
+		if (weights == null) {
+			throw new IllegalArgumentException("Weights cannot be null.");
+		}
+		if (!(significance > 0 && significance < 1)) {
+			throw new IllegalArgumentException("Significance should be between 0 and 1, not " + significance);
+		}
+		double sumOfWeights = 0;
+		int positive = 0;
+		for (double w : weights) {
+			if (!(w >= 0)) {
+				throw new IllegalArgumentException("Weights cannot be negative.");
+			}
+			sumOfWeights += w;
+			if (w > 0) {
+				positive++;
+			}
+		}
+		if (positive < 2) {
+			throw new IllegalArgumentException("At least two weights should be positive, not " + positive);
+		}
+
+		probabilities = new double[weights.length];
+		counts = new LongAdder[weights.length];
+		double min = 1;
+		for (int i = 0; i < weights.length; i++) {
+			probabilities[i] = weights[i] / sumOfWeights;
+			counts[i] = new LongAdder();
+			if (weights[i] > 0) {
+				min = Math.min(min, probabilities[i]);
+			}
+		}
+		this.minProbability = min;
+		this.significance = significance;
+		this.criticalValue = criticalValue(positive - 1, significance);
+	}
+
+	/**
+	 * Record a throw.
+	 * @param side Side thrown, from 1 to the number of sides.
+	 */
+	public void record(int side) {
+		counts[side - 1].increment();
+	}
+
+	/**
+	 * Record n throws of the same side.
+	 */
+	public void record(int side, long n) {
+		counts[side - 1].add(n);
+	}
+
+	/**
+	 * Evaluate the chi-square statistic of the throws so far and update the drift flag.
+	 * @return True if the throws depart from the expected distribution at the 
+	 * 	monitor's significance level. False also while there are too few throws to tell.
+	 */
+	public boolean check() {
+		boolean drift = false;
+		long total = getTotalCount();
+		if (total * minProbability >= MIN_EXPECTED_COUNT) {
+			drift = getChiSquare() > criticalValue;
+		}
+		drifting = drift;
+		return drift;
+	}
+
+	/**
+	 * @return Result of the last check().
+	 */
+	public boolean isDrifting() {
+		return drifting;
+	}
+
+	/**
+	 * Pearson's chi-square statistic, SUM of (O - E)^2/E = SUM of O^2/E - N.
+	 * @return Statistic of the throws so far, 0 if there are none.
+	 */
+	public double getChiSquare() {
+		long total = 0;
+		double sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			long observed = counts[i].sum();
+			total += observed;
+			if (observed > 0) {
+				sum += (double)observed * observed / probabilities[i];
+			}
+		}
+		return total == 0 ? 0 : sum / total - total;
+	}
+
+	/**
+	 * G-test statistic, 2 SUM of O ln(O/E) = 2 (SUM of O ln(O/p) - N ln(N)).
+	 * @return Statistic of the throws so far, 0 if there are none.
+	 */
+	public double getGStatistic() {
+		long total = 0;
+		double sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			long observed = counts[i].sum();
+			total += observed;
+			if (observed > 0) {
+				sum += observed * Math.log(observed / probabilities[i]);
+			}
+		}
+		return total == 0 ? 0 : 2 * (sum - total * Math.log(total));
+	}
+
+	public long getCount(int side) {
+		return counts[side - 1].sum();
+	}
+
+	public long getTotalCount() {
+		long total = 0;
+		for (LongAdder count : counts) {
+			total += count.sum();
+		}
+		return total;
+	}
+
+	/**
+	 * Forget the throws so far and clear the drift flag.
+	 */
+	public void reset() {
+		for (LongAdder count : counts) {
+			count.reset();
+		}
+		drifting = false;
+	}
+
+	public int getNumberOfSides() {
+		return counts.length;
+	}
+
+	public double getSignificance() {
+		return significance;
+	}
+
+	/**
+	 * @return Value of the statistic above which check() flags drift.
+	 */
+	public double getCriticalValue() {
+		return criticalValue;
+	}
+
+	/**
+	 * Critical value of the chi-square distribution, which both the chi-square and
+	 * the G statistic follow for large samples.
+	 * @param degreesOfFreedom Degrees of freedom, the number of sides minus one.
+	 * @param significance Probability of exceeding the critical value.
+	 * @return x such that P(X > x) = significance, for X chi-square distributed.
+	 */
+	public static double criticalValue(int degreesOfFreedom, double significance) {
+		if (degreesOfFreedom < 1) {
+			throw new IllegalArgumentException("Degrees of freedom should be positive, not " + degreesOfFreedom);
+		}
+		if (!(significance > 0 && significance < 1)) {
+			throw new IllegalArgumentException("Significance should be between 0 and 1, not " + significance);
+		}
+		
+		// P(X > x) = Q(k/2, x/2) decreases in x, bracket the root and bisect
+		double a = degreesOfFreedom / 2.0;
+		double lo = 0;
+		double hi = degreesOfFreedom;
+		while (upperGamma(a, hi / 2) > significance) {
+			lo = hi;
+			hi *= 2;
+		}
+		for (int i = 0; i < MAX_ITERATIONS && hi - lo > EPSILON * hi; i++) {
+			double median = (lo + hi) / 2;
+			if (upperGamma(a, median / 2) > significance) {
+				lo = median;
+			}
+			else {
+				hi = median;
+			}
+		}
+		return (lo + hi) / 2;
+	}
+
+	private static double[] probabilitiesOf(WeightedDie die) {
+		if (die == null) {
+			throw new IllegalArgumentException("Die cannot be null.");
+		}
+		double[] probabilities = new double[die.getNumberOfSides()];
+		for (int i = 0; i < probabilities.length; i++) {
+			probabilities[i] = die.getProbability(i + 1);
+		}
+		return probabilities;
+	}
+
+	/**
+	 * Regularized upper incomplete gamma function Q(a, x), by its series for 
+	 * x < a + 1 and by its continued fraction otherwise (Numerical Recipes, 6.2).
+	 * @throws ArithmeticException If the series or the fraction doesn't converge.
+	 */
+	private static double upperGamma(double a, double x) {
+		if (x <= 0) {
+			return 1;
+		}
+		double front = Math.exp(-x + a * Math.log(x) - logGamma(a));
+		int maxIterations = MAX_ITERATIONS + (int)Math.ceil(ITERATIONS_PER_SQRT_A * Math.sqrt(a));
+		if (x < a + 1) {
+			double ap = a;
+			double term = 1 / a;
+			double sum = term;
+			for (int i = 0; Math.abs(term) > Math.abs(sum) * EPSILON; i++) {
+				if (i == maxIterations) {
+					throw new ArithmeticException("Gamma series for a=" + a + ", x=" + x 
+							+ " did not converge in " + maxIterations + " terms.");
+				}
+				ap++;
+				term *= x / ap;
+				sum += term;
+			}
+			return 1 - sum * front;
+		}
+		
+		// Modified Lentz's method
+		double tiny = Double.MIN_NORMAL / EPSILON;
+		double b = x + 1 - a;
+		double c = 1 / tiny;
+		double d = 1 / b;
+		double h = d;
+		for (int i = 1; ; i++) {
+			if (i > maxIterations) {
+				throw new ArithmeticException("Gamma continued fraction for a=" + a + ", x=" + x 
+						+ " did not converge in " + maxIterations + " terms.");
+			}
+			double an = -i * (i - a);
+			b += 2;
+			d = an * d + b;
+			if (Math.abs(d) < tiny) {
+				d = tiny;
+			}
+			c = b + an / c;
+			if (Math.abs(c) < tiny) {
+				c = tiny;
+			}
+			d = 1 / d;
+			double delta = d * c;
+			h *= delta;
+			if (Math.abs(delta - 1) < EPSILON) {
+				return front * h;
+			}
+		}
+	}
+
+	/**
+	 * Lanczos approximation of ln(Gamma(x)) for x > 0 (Numerical Recipes, 6.1).
+	 */
+	private static double logGamma(double x) {
+		double y = x;
+		double tmp = x + 5.5;
+		tmp -= (x + 0.5) * Math.log(tmp);
+		double series = 1.000000000190015;
+		for (double coefficient : LANCZOS_COEFFICIENTS) {
+			series += coefficient / ++y;
+		}
+		return -tmp + Math.log(2.5066282746310005 * series / x);
+	}
+}
@@ -1,6 +1,6 @@
 package com.placester.test;
 
-import java.util.Arrays;
+import java.util.Random;
 
 /*
  * Implement a 6 sided die with weights on the sides, so that we don't have an even probability distribution, but it is 
@@ -17,15 +17,39 @@ public class SixSidedWeightedDie extends WeightedDie
     // should be of length 6. You should throw if either of these preconditions is false
     public SixSidedWeightedDie(float[] weights)
     {
-        super(weights);
+        this(weights, false);
+    }
+
+    public SixSidedWeightedDie(float[] weights, boolean concurrent)
+    {
+        super(weights, concurrent);
+        if (weights.length != 6) {
+        	throw new IllegalArgumentException("The number of weights " + weights.length + " != 6.");
+        }
+    }
+
+    // Not thread-safe, see WeightedDie(float[], long)
+    public SixSidedWeightedDie(float[] weights, long seed)
+    {
+        super(weights, seed);
         if (weights.length != 6) {
         	throw new IllegalArgumentException("The number of weights " + weights.length + " != 6.");
         }
     }
 
+    private SixSidedWeightedDie(SixSidedWeightedDie parent, Random random)
+    {
+        super(parent, random);
+    }
+
+	@Override
+	public SixSidedWeightedDie split() {
+		return new SixSidedWeightedDie(this, splitGenerator());
+	}
+
 	public float getChiSquareForLargeSample() {
-		// with p=0.05, and 5 degrees of freedom, assuming n->oo, x2 should be < 1.14
-		return 1.14f;
+		// with p=0.05, and 5 degrees of freedom, assuming n->oo, x2 should be < 11.07
+		return (float)GoodnessOfFitMonitor.criticalValue(getNumberOfSides() - 1, 0.05);
 	}
 
 }
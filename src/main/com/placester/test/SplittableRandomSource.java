@@ -0,0 +1,56 @@
+package com.placester.test;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Random drawing from a SplittableRandom, so that seeded dice can keep throwing 
+ * through the Random API and still be split into independent, reproducible streams.
+ * Like SplittableRandom, an instance should only be used by one thread at a time.
+ */
+class SplittableRandomSource extends Random
+{
+	private static final long serialVersionUID = 1L;
+
+	private final SplittableRandom source;
+
+	SplittableRandomSource(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	SplittableRandomSource(SplittableRandom source) {
+		this.source = source;
+	}
+
+	/**
+	 * @return New generator split off this one.
+	 */
+	SplittableRandom split() {
+		return source.split();
+	}
+
+	@Override
+	protected int next(int bits) {
+		return source.nextInt() >>> (32 - bits);
+	}
+
+	@Override
+	public int nextInt() {
+		return source.nextInt();
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		return source.nextInt(bound);
+	}
+
+	@Override
+	public long nextLong() {
+		return source.nextLong();
+	}
+
+	@Override
+	public double nextDouble() {
+		return source.nextDouble();
+	}
+}
@@ -2,13 +2,74 @@ package com.placester.test;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
 public abstract class WeightedDie
 {
-	protected WeightedDieSide[] sides;
-	protected Random random;
+	// Below this many throws per side sampleCounts draws every throw, above it 
+	// draws the histogram directly as a multinomial.
+	private static final int MULTINOMIAL_THRESHOLD = 16;
+	// Throws per leaf task of sampleCountsParallel. Fixed, so that the way the
+	// generator is split doesn't depend on the number of threads.
+	private static final long PARALLEL_CHUNK = 1 << 20;
+
+	protected final WeightedDieSide[] sides;
+	// Upper bounds of the side ranges, same table as sides without the boxing.
+	private final float[] bounds;
+	// The die's own generator, null for concurrent dice. Subclasses should draw 
+	// through generator(), which works for every kind of die.
+	protected final Random random;
+	private final boolean concurrent;
+	private volatile GoodnessOfFitMonitor monitor;
 
     public WeightedDie(float [] weights){
+    	this(weights, false);
+    }
+
+    /**
+     * Create a die with reproducible throws. Two dice with the same weights and seed
+     * throw the same sequence, and so do dice split from them.
+     * <p>
+     * Unlike the other dice, a seeded die is not thread-safe: throwing or splitting it 
+     * from several threads at once silently corrupts its sequence. Use it from one 
+     * thread, and give every other thread a die of its own from split(), or use 
+     * sampleCountsParallel().
+     * @param weights Side weights, should add to 1.
+     * @param seed Seed of the die's SplittableRandom.
+     */
+    public WeightedDie(float [] weights, long seed){
+    	this(weights, false, new SplittableRandomSource(seed));
+    }
+
+    /**
+     * @param weights Side weights, should add to 1.
+     * @param concurrent If true, the die draws from a per-thread generator 
+     * 	(ThreadLocalRandom) instead of a single shared Random, so that many threads
+     * 	can throw it without contending on the shared seed. The sides table is 
+     * 	immutable and shared either way.
+     */
+    public WeightedDie(float [] weights, boolean concurrent){
+    	// Create RNG seeded with current time. Concurrent dice don't need it, 
+    	// they use ThreadLocalRandom of the calling thread.
+    	this(weights, concurrent, concurrent ? null : new Random(System.currentTimeMillis()));
+    }
+
+    /**
+     * Create a die sharing the sides of parent, throwing with its own generator.
+     * Used by split().
+     */
+    protected WeightedDie(WeightedDie parent, Random random){
+    	this.sides = parent.sides;
+    	this.bounds = parent.bounds;
+    	this.concurrent = false;
+    	this.random = random;
+    }
+
+    private WeightedDie(float [] weights, boolean concurrent, Random random){
 		if (weights == null) {
 			throw new IllegalArgumentException("Weights cannot be null.");
 		}
@@ -27,38 +88,405 @@ public abstract class WeightedDie
 
 		// Create sides as probabilities
 		sides = new WeightedDieSide[weights.length];
+		bounds = new float[weights.length];
 		float min = 0;
 		for (int i = 0; i < weights.length; i++) {
 			float max = min + weights[i];
 			sides[i] = new WeightedDieSide(min, max);
+			bounds[i] = max;
 			min = max;
 		}
 				
-		// Create RNG seeded with current time. 
-		// Use ThreadLocalRandom in multithreaded environment.
-		random = new Random(System.currentTimeMillis()); 
-
+		this.concurrent = concurrent;
+		this.random = random;
     }
     
     public int throwDie() {
-		Float f = random.nextFloat();
+		Float f = generator().nextFloat();
 		int idx = Arrays.binarySearch(sides, f);
 		if (idx < 0) {
 			throw new Error("Random number out of bounds.");
 		}
-		return idx + 1;
+		return record(idx + 1);
     }
 
+	/**
+	 * Throw the die len times, same as calling throwDie() in a loop.
+	 * @param dest Array to store the sides thrown.
+	 * @param off Position of the first throw in dest.
+	 * @param len Number of throws.
+	 */
+	public void throwDice(int[] dest, int off, int len) {
+		if (dest == null) {
+			throw new IllegalArgumentException("Destination cannot be null.");
+		}
+		if (off < 0 || len < 0 || len > dest.length - off) {
+			throw new IndexOutOfBoundsException("Range [" + off + ", " + off + " + " + len 
+					+ ") out of bounds for length " + dest.length);
+		}
+		Random rng = generator();
+		GoodnessOfFitMonitor m = monitor;
+		for (int i = off; i < off + len; i++) {
+			dest[i] = sideFor(rng.nextFloat()) + 1;
+			if (m != null) {
+				m.record(dest[i]);
+			}
+		}
+	}
+
+	/**
+	 * Throw the die n times and count the outcomes. For large n the counts are drawn
+	 * directly from the multinomial distribution, one binomial per side, rather 
+	 * than throw by throw.
+	 * @param n Number of throws.
+	 * @return Histogram of the throws, element i holds the count of side i+1.
+	 */
+	public long[] sampleCounts(long n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Number of throws cannot be negative.");
+		}
+		long[] counts = new long[sides.length];
+		sampleCounts(n, generator(), counts);
+		return record(counts);
+	}
+
+	/**
+	 * @return Endless stream of throws.
+	 */
+	public IntStream throwStream() {
+		return IntStream.generate(() -> record(sideFor(generator().nextFloat()) + 1));
+	}
+
+	/**
+	 * Draw k distinct sides, each draw weighted among the sides not drawn yet.
+	 * Uses Efraimidis-Spirakis sampling: every side gets the key E/w, with E 
+	 * exponentially distributed and w its weight, and the k smallest keys win. 
+	 * They are kept in a heap of size k next to the result.
+	 * <p>
+	 * For n sides this scans all of them once, and the m-th side only enters the heap 
+	 * if its key is among the k smallest so far, with probability about k/m. That is
+	 * k ln(n/k) heap updates in expectation, so the expected cost is 
+	 * O(n + k log k log(n/k)). The worst case is O(n log k), when the weights grow
+	 * steeply along the sides and most later sides win a place. The sides table is 
+	 * immutable and keeps no sums of weights to take drawn sides out of, so the O(n) 
+	 * scan can't be avoided here; DynamicWeightedDie.sampleDistinct() takes O(k log n)
+	 * for dice with many sides and small k.
+	 * @param k Number of sides to draw.
+	 * @return Sides drawn, in the order successive throws would have drawn them.
+	 */
+	public int[] sampleDistinct(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Number of sides to draw cannot be negative.");
+		}
+		if (k > sides.length) {
+			throw new IllegalArgumentException("Cannot draw " + k + " distinct sides of " + sides.length);
+		}
+		int[] result = new int[k];
+		if (k == 0) {
+			return result;
+		}
+		double[] keys = new double[k];
+		Random rng = generator();
+		int size = 0;
+		for (int i = 0; i < sides.length; i++) {
+			double weight = (double)sides[i].max - sides[i].min;
+			if (weight <= 0) {
+				continue;
+			}
+			double key = -Math.log(1.0 - rng.nextDouble()) / weight;
+			if (size < k) {
+				result[size] = i + 1;
+				keys[size] = key;
+				siftUp(result, keys, size++);
+			}
+			else if (key < keys[0]) {
+				result[0] = i + 1;
+				keys[0] = key;
+				siftDown(result, keys, 0, k);
+			}
+		}
+		if (size < k) {
+			throw new IllegalArgumentException("Cannot draw " + k + " distinct sides, only " 
+					+ size + " have non-zero weight.");
+		}
+
+		// Heap sort, largest key to the back
+		for (int end = k - 1; end > 0; end--) {
+			swap(result, keys, 0, end);
+			siftDown(result, keys, 0, end);
+		}
+		return result;
+	}
+
+	/**
+	 * Same as sampleCounts(long), but splits the throws across the common 
+	 * fork-join pool.
+	 */
+	public long[] sampleCountsParallel(long n) {
+		return sampleCountsParallel(n, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Same as sampleCounts(long), but splits the throws across the threads of pool. 
+	 * The throws are cut into fixed-size chunks, each thrown with its own split of 
+	 * the die's generator, so a seeded die gives the same counts for any number
+	 * of threads.
+	 * @param n Number of throws.
+	 * @param pool Pool to run the chunks in.
+	 * @return Histogram of the throws, element i holds the count of side i+1.
+	 */
+	public long[] sampleCountsParallel(long n, ForkJoinPool pool) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Number of throws cannot be negative.");
+		}
+		return record(pool.invoke(new SampleCountsTask(n, splitSource())));
+	}
+
+	/**
+	 * Split off a die with the same sides and an independent generator. Splitting 
+	 * a seeded die is deterministic, so a die split off a seeded die is reproducible too.
+	 * <p>
+	 * The die returned always throws from a single-threaded generator like a seeded 
+	 * die does, so split once per thread. Splitting a seeded die changes its own 
+	 * generator, so it has to be done on the thread that owns the die.
+	 */
+	public WeightedDie split() {
+		return new SplitDie(this, splitGenerator());
+	}
+
+	/**
+	 * @return Independent generator for a die split off this die.
+	 */
+	protected Random splitGenerator() {
+		return new SplittableRandomSource(splitSource());
+	}
+
+	/**
+	 * @return SplittableRandom split off the die's own when it is seeded, 
+	 * 	or seeded from its generator otherwise.
+	 */
+	private SplittableRandom splitSource() {
+		if (random instanceof SplittableRandomSource) {
+			return ((SplittableRandomSource)random).split();
+		}
+		return new SplittableRandom(generator().nextLong());
+	}
+
+	/**
+	 * Attach a monitor recording every throw of this die, or detach it with null.
+	 * Draws of sampleDistinct() are not throws and are not recorded; dice split off 
+	 * this die don't inherit its monitor.
+	 */
+	public void setMonitor(GoodnessOfFitMonitor monitor) {
+		if (monitor != null && monitor.getNumberOfSides() != sides.length) {
+			throw new IllegalArgumentException("Monitor has " + monitor.getNumberOfSides() 
+					+ " sides, the die has " + sides.length);
+		}
+		this.monitor = monitor;
+	}
+
+	public GoodnessOfFitMonitor getMonitor() {
+		return monitor;
+	}
+
+	public int getNumberOfSides() {
+		return sides.length;
+	}
+
+	/**
+	 * @param side Side, from 1 to the number of sides.
+	 * @return Probability of throwing side.
+	 */
+	public double getProbability(int side) {
+		if (side < 1 || side > sides.length) {
+			throw new IllegalArgumentException("Side should be between 1 and " + sides.length + ", not " + side);
+		}
+		return (double)sides[side - 1].max - sides[side - 1].min;
+	}
+
+	public boolean isConcurrent() {
+		return concurrent;
+	}
+
+	/**
+	 * Generator subclasses should draw from, rather than reading random directly.
+	 * @return The die's own generator, or ThreadLocalRandom of the calling thread 
+	 * 	for a concurrent die.
+	 */
+	protected Random generator() {
+		return concurrent ? ThreadLocalRandom.current() : random;
+	}
+
 	public abstract float getChiSquareForLargeSample();
 
+	private int record(int side) {
+		GoodnessOfFitMonitor m = monitor;
+		if (m != null) {
+			m.record(side);
+		}
+		return side;
+	}
+
+	private long[] record(long[] counts) {
+		GoodnessOfFitMonitor m = monitor;
+		if (m != null) {
+			for (int i = 0; i < counts.length; i++) {
+				m.record(i + 1, counts[i]);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Add n throws drawn from rng to counts.
+	 */
+	private void sampleCounts(long n, Random rng, long[] counts) {
+		if (n < (long)MULTINOMIAL_THRESHOLD * sides.length) {
+			for (long i = 0; i < n; i++) {
+				counts[sideFor(rng.nextFloat())]++;
+			}
+			return;
+		}
+
+		// Multinomial as a chain of binomials: side i gets its share of the throws 
+		// left over by sides 0..i-1, with probability conditional on not being one of them.
+		long remaining = n;
+		int last = sides.length - 1;
+		for (int i = 0; i < last && remaining > 0; i++) {
+			double p = ((double)sides[i].max - sides[i].min) / (1.0 - sides[i].min);
+			long count = Binomial.sample(rng, remaining, Math.min(p, 1.0));
+			counts[i] += count;
+			remaining -= count;
+		}
+		counts[last] += remaining;
+	}
+
+	/**
+	 * Restore the max-heap of keys after adding the element at pos.
+	 */
+	private static void siftUp(int[] values, double[] keys, int pos) {
+		while (pos > 0) {
+			int parent = (pos - 1) / 2;
+			if (keys[parent] >= keys[pos]) {
+				return;
+			}
+			swap(values, keys, parent, pos);
+			pos = parent;
+		}
+	}
+
+	/**
+	 * Restore the max-heap of keys in [0, size) after replacing the element at pos.
+	 */
+	private static void siftDown(int[] values, double[] keys, int pos, int size) {
+		while (true) {
+			int largest = pos;
+			int left = 2 * pos + 1;
+			int right = left + 1;
+			if (left < size && keys[left] > keys[largest]) {
+				largest = left;
+			}
+			if (right < size && keys[right] > keys[largest]) {
+				largest = right;
+			}
+			if (largest == pos) {
+				return;
+			}
+			swap(values, keys, largest, pos);
+			pos = largest;
+		}
+	}
+
+	private static void swap(int[] values, double[] keys, int i, int j) {
+		int value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+	}
+
+	/**
+	 * Primitive version of the search in throwDie().
+	 * @return Index of the side whose [min, max) range contains f.
+	 */
+	private int sideFor(float f) {
+		int lo = 0;
+		int hi = bounds.length - 1;
+		while (lo < hi) {
+			int median = (lo + hi) >>> 1;
+			if (f < bounds[median]) {
+				hi = median;
+			}
+			else {
+				lo = median + 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Counts n throws, halving the work down to PARALLEL_CHUNK throws per task.
+	 * The generator is split before the right half is forked, so each chunk draws
+	 * from the same stream however the tasks are scheduled.
+	 */
+	private class SampleCountsTask extends RecursiveTask<long[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final long n;
+		private final SplittableRandom rng;
+
+		private SampleCountsTask(long n, SplittableRandom rng) {
+			this.n = n;
+			this.rng = rng;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (n <= PARALLEL_CHUNK) {
+				long[] counts = new long[sides.length];
+				sampleCounts(n, new SplittableRandomSource(rng), counts);
+				return counts;
+			}
+			long chunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+			long leftN = (chunks / 2) * PARALLEL_CHUNK;
+			SampleCountsTask right = new SampleCountsTask(n - leftN, rng.split());
+			right.fork();
+			long[] counts = new SampleCountsTask(leftN, rng).compute();
+			long[] rightCounts = right.join();
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += rightCounts[i];
+			}
+			return counts;
+		}
+	}
+
+	/**
+	 * Die returned by the default split(), sharing the sides of its parent and 
+	 * deferring to it for anything its subclass defines.
+	 */
+	private static class SplitDie extends WeightedDie {
+		private final WeightedDie parent;
+
+		private SplitDie(WeightedDie parent, Random random) {
+			super(parent, random);
+			this.parent = parent;
+		}
+
+		@Override
+		public float getChiSquareForLargeSample() {
+			return parent.getChiSquareForLargeSample();
+		}
+	}
+
 	/**
 	 * An auxiliary class representing weighted die side. Weight here is stored as 
 	 * probability range [min, max). Implements Comparable interface to tell if a 
 	 * given probability falls within the [min, max) range. 
 	 */
 	private class WeightedDieSide implements Comparable<Float> {
-		private float min;
-		private float max;
+		private final float min;
+		private final float max;
 		
 		private WeightedDieSide(float min, float max) {
 			this.min = min;
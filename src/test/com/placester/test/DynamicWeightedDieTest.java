@@ -0,0 +1,177 @@
+package com.placester.test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DynamicWeightedDieTest
+{
+	@Test
+	public void test() {
+		long[] weights = new long[] {5, 10, 15, 20, 20, 30};
+		DynamicWeightedDie die = new DynamicWeightedDie(weights);
+		assertDistribution(die, weights);
+
+		// reweight, including switching sides off and on
+		weights = new long[] {0, 300, 100, 0, 400, 200};
+		for (int i = 0; i < weights.length; i++) {
+			die.setWeight(i + 1, weights[i]);
+		}
+		Assert.assertEquals(1000, die.getTotalWeight());
+		assertDistribution(die, weights);
+	}
+
+	@Test
+	public void testManySides() {
+		int numberOfSides = 300000;
+		DynamicWeightedDie die = new DynamicWeightedDie(numberOfSides);
+		die.setWeight(1, 1);
+		die.setWeight(123457, 2);
+		die.setWeight(numberOfSides, 1);
+		int[] counts = new int[3];
+		int numThrows = 100000;
+		for (int i = 0; i < numThrows; i++) {
+			int side = die.throwDie();
+			counts[side == 1 ? 0 : side == 123457 ? 1 : side == numberOfSides ? 2 : -1]++;
+		}
+		Assert.assertTrue(Math.abs((float)counts[0]/numThrows - .25f) <= .01f);
+		Assert.assertTrue(Math.abs((float)counts[1]/numThrows - .5f) <= .01f);
+		Assert.assertTrue(Math.abs((float)counts[2]/numThrows - .25f) <= .01f);
+	}
+
+	@Test
+	public void testSampleDistinct() {
+		long[] weights = new long[] {5, 10, 15, 20, 20, 30, 0};
+		DynamicWeightedDie die = new DynamicWeightedDie(weights);
+		int[] firstCounts = new int[weights.length];
+		int numDraws = 100000;
+		for (int i = 0; i < numDraws; i++) {
+			int[] drawn = die.sampleDistinct(6);
+			Assert.assertEquals(6, drawn.length);
+			boolean[] seen = new boolean[weights.length];
+			for (int side : drawn) {
+				Assert.assertFalse(seen[side-1]);
+				seen[side-1] = true;
+			}
+			Assert.assertFalse(seen[6]);
+			firstCounts[drawn[0]-1]++;
+		}
+		for (int i = 0; i < weights.length; i++) {
+			float actual = (float)firstCounts[i]/numDraws;
+			Assert.assertTrue(Math.abs(actual - (float)weights[i]/100) <= .01f);
+		}
+
+		// drawing too many fails, and leaves the die as it was
+		try {
+			die.sampleDistinct(7);
+			Assert.fail("Drew a side with weight 0.");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		Assert.assertEquals(100, die.getTotalWeight());
+		assertDistribution(die, weights);
+	}
+
+	@Test
+	public void testConcurrentThrowsAndUpdates() throws Exception {
+		// side 3 never has weight, a throw seeing a half updated tree could land on it
+		final DynamicWeightedDie die = new DynamicWeightedDie(new long[] {1, 2, 0});
+		final AtomicBoolean done = new AtomicBoolean();
+		final int threads = 8;
+		ExecutorService threadPool = Executors.newFixedThreadPool(threads + 1);
+		Future<?> writer = threadPool.submit(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; !done.get(); i++) {
+					die.setWeight(1 + i % 2, 1 + i % 3);
+				}
+			}
+		});
+		Future<?>[] throwers = new Future<?>[threads];
+		for (int t = 0; t < threads; t++) {
+			throwers[t] = threadPool.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 200000; i++) {
+						int side = die.throwDie();
+						Assert.assertTrue(side == 1 || side == 2);
+					}
+				}
+			});
+		}
+		for (Future<?> thrower : throwers) {
+			thrower.get(1, TimeUnit.MINUTES);
+		}
+		done.set(true);
+		writer.get(1, TimeUnit.MINUTES);
+		threadPool.shutdown();
+	}
+
+	@Test
+	public void testThrowsDontSerialize() throws Exception {
+		// Throws and reads never take the die's monitor, so they go on while
+		// another thread holds it.
+		final DynamicWeightedDie die = new DynamicWeightedDie(new long[] {1, 1});
+		ExecutorService threadPool = Executors.newSingleThreadExecutor();
+		synchronized (die) {
+			Future<?> thrower = threadPool.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						die.throwDie();
+						die.getTotalWeight();
+						die.getWeight(1);
+					}
+				}
+			});
+			thrower.get(1, TimeUnit.MINUTES);
+		}
+		threadPool.shutdown();
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testAllWeightsZero() {
+		new DynamicWeightedDie(6).throwDie();
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSampleDistinctMoreThanSides() {
+		new DynamicWeightedDie(new long[] {1, 1, 1}).sampleDistinct(Integer.MAX_VALUE);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNegativeWeight() {
+		new DynamicWeightedDie(6).setWeight(1, -1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSideOutOfRange() {
+		new DynamicWeightedDie(6).setWeight(7, 1);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testTotalWeightOverflow() {
+		new DynamicWeightedDie(new long[] {Long.MAX_VALUE, 1});
+	}
+
+	private void assertDistribution(DynamicWeightedDie die, long[] weights) {
+		int[] counts = new int[weights.length];
+		int numThrows = 100000;
+		for (int i = 0; i < numThrows; i++) {
+			counts[die.throwDie()-1]++;
+		}
+		for (int i = 0; i < weights.length; i++) {
+			float expected = (float)weights[i]/die.getTotalWeight();
+			float actual = (float)counts[i]/numThrows;
+			Assert.assertTrue(Math.abs(actual - expected) <= .01f);
+			if (weights[i] == 0) {
+				Assert.assertEquals(0, counts[i]);
+			}
+		}
+	}
+}
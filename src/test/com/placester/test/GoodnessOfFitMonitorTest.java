@@ -0,0 +1,77 @@
+package com.placester.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GoodnessOfFitMonitorTest
+{
+	@Test
+	public void testCriticalValues() {
+		Assert.assertEquals(3.8415, GoodnessOfFitMonitor.criticalValue(1, .05), .0001);
+		Assert.assertEquals(11.0705, GoodnessOfFitMonitor.criticalValue(5, .05), .0001);
+		Assert.assertEquals(1.1455, GoodnessOfFitMonitor.criticalValue(5, .95), .0001);
+		Assert.assertEquals(23.2093, GoodnessOfFitMonitor.criticalValue(10, .01), .0001);
+		Assert.assertEquals(124.3421, GoodnessOfFitMonitor.criticalValue(100, .05), .0001);
+		// a million sides, against Wilson-Hilferty which is accurate to well under .1 here
+		Assert.assertEquals(999998.33, GoodnessOfFitMonitor.criticalValue(999999, .5), .01);
+		Assert.assertEquals(997673.96, GoodnessOfFitMonitor.criticalValue(999999, .95), .1);
+		Assert.assertEquals(1004374.9, GoodnessOfFitMonitor.criticalValue(999999, .001), .1);
+	}
+
+	@Test
+	public void testMatchingDie() {
+		float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		SixSidedWeightedDie die = new SixSidedWeightedDie(weights, 1L);
+		GoodnessOfFitMonitor monitor = new GoodnessOfFitMonitor(die, .001);
+		die.setMonitor(monitor);
+
+		Assert.assertFalse(monitor.check());
+		int[] dice = new int[100000];
+		die.throwDice(dice, 0, dice.length);
+		Assert.assertEquals(dice.length, monitor.getTotalCount());
+		Assert.assertFalse(monitor.check());
+		Assert.assertTrue(monitor.getChiSquare() < monitor.getCriticalValue());
+		Assert.assertTrue(monitor.getGStatistic() < monitor.getCriticalValue());
+
+		die.sampleCounts(10000000L);
+		Assert.assertEquals(dice.length + 10000000L, monitor.getTotalCount());
+		Assert.assertFalse(monitor.check());
+	}
+
+	@Test
+	public void testDrift() {
+		float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		SixSidedWeightedDie die = new SixSidedWeightedDie(weights);
+		GoodnessOfFitMonitor monitor = new GoodnessOfFitMonitor(
+				new double[] {1, 2, 3, 4, 4, 5}, .001);
+		die.setMonitor(monitor);
+		for (int i = 0; i < 100000; i++) {
+			die.throwDie();
+		}
+		Assert.assertTrue(monitor.check());
+		Assert.assertTrue(monitor.isDrifting());
+		Assert.assertTrue(monitor.getGStatistic() > monitor.getCriticalValue());
+
+		monitor.reset();
+		Assert.assertFalse(monitor.isDrifting());
+		Assert.assertEquals(0, monitor.getTotalCount());
+	}
+
+	@Test
+	public void testStatistics() {
+		GoodnessOfFitMonitor monitor = new GoodnessOfFitMonitor(new double[] {.5, .5}, .05);
+		monitor.record(1, 60);
+		monitor.record(2, 40);
+		// (60-50)^2/50 + (40-50)^2/50
+		Assert.assertEquals(4.0, monitor.getChiSquare(), 1e-9);
+		// 2 * (60 ln(60/50) + 40 ln(40/50))
+		Assert.assertEquals(4.0271, monitor.getGStatistic(), .0001);
+		Assert.assertTrue(monitor.check());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testMonitorSidesMismatch() {
+		new SixSidedWeightedDie(new float[] {1f/6, 1f/6, 1f/6, 1f/6, 1f/6, 1f/6})
+			.setMonitor(new GoodnessOfFitMonitor(new double[] {1, 1}, .05));
+	}
+}
@@ -1,5 +1,12 @@
 package com.placester.test;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -69,6 +76,176 @@ public class WeightedDiceTest
 		Assert.assertEquals(numOfTests, totalCount);
 	}
 
+	@Test
+	public void testConcurrentThrows() throws InterruptedException {
+		final float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		final SixSidedWeightedDie die = new SixSidedWeightedDie(weights, true);
+		final AtomicIntegerArray counts = new AtomicIntegerArray(6);
+		final int threads = 8;
+		final int throwsPerThread = 25000;
+		ExecutorService threadPool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			threadPool.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < throwsPerThread; i++) {
+						counts.incrementAndGet(die.throwDie() - 1);
+					}
+				}
+			});
+		}
+		threadPool.shutdown();
+		Assert.assertTrue(threadPool.awaitTermination(1, TimeUnit.MINUTES));
+
+		int numThrows = threads * throwsPerThread;
+		for (int i = 0; i < 6; i++) {
+			float actual = (float)counts.get(i)/numThrows;
+			Assert.assertTrue(Math.abs(actual - weights[i]) <= .01f);
+		}
+	}
+
+	@Test
+	public void testThrowDice() {
+		float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		SixSidedWeightedDie die = new SixSidedWeightedDie(weights);
+		int numThrows = 100000;
+		int[] dest = new int[numThrows + 2];
+		die.throwDice(dest, 1, numThrows);
+		Assert.assertEquals(0, dest[0]);
+		Assert.assertEquals(0, dest[numThrows + 1]);
+
+		int[] counts = new int[6];
+		for (int i = 1; i <= numThrows; i++) {
+			counts[dest[i]-1]++;
+		}
+		for (int i = 0; i < 6; i++) {
+			float actual = (float)counts[i]/numThrows;
+			Assert.assertTrue(Math.abs(actual - weights[i]) <= .01f);
+		}
+	}
+
+	@Test
+	public void testSampleCounts() {
+		float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		SixSidedWeightedDie die = new SixSidedWeightedDie(weights);
+		// first below, then well above the multinomial threshold
+		for (long numThrows : new long[] {50, 100000, 10000000000L}) {
+			long[] counts = die.sampleCounts(numThrows);
+			long totalCount = 0;
+			for (int i = 0; i < 6; i++) {
+				totalCount += counts[i];
+				if (numThrows >= 100000) {
+					double actual = (double)counts[i]/numThrows;
+					Assert.assertTrue(Math.abs(actual - weights[i]) <= .01f);
+				}
+			}
+			Assert.assertEquals(numThrows, totalCount);
+		}
+	}
+
+	@Test
+	public void testThrowStream() {
+		float[] weights = new float[] {0f, .5f, 0f, 0f, .5f, 0f};
+		SixSidedWeightedDie die = new SixSidedWeightedDie(weights);
+		Assert.assertEquals(0, die.throwStream().limit(10000)
+				.filter(side -> side != 2 && side != 5).count());
+	}
+
+	@Test
+	public void testSeededThrows() {
+		float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		SixSidedWeightedDie die = new SixSidedWeightedDie(weights, 42L);
+		SixSidedWeightedDie sameDie = new SixSidedWeightedDie(weights, 42L);
+		int[] dice = new int[1000];
+		int[] sameDice = new int[1000];
+		die.throwDice(dice, 0, dice.length);
+		sameDie.throwDice(sameDice, 0, sameDice.length);
+		Assert.assertTrue(Arrays.equals(dice, sameDice));
+
+		// splits of equally seeded dice are equal too, but differ from the parent
+		SixSidedWeightedDie split = die.split();
+		SixSidedWeightedDie sameSplit = sameDie.split();
+		split.throwDice(dice, 0, dice.length);
+		sameSplit.throwDice(sameDice, 0, sameDice.length);
+		Assert.assertTrue(Arrays.equals(dice, sameDice));
+		die.throwDice(sameDice, 0, sameDice.length);
+		Assert.assertFalse(Arrays.equals(dice, sameDice));
+	}
+
+	@Test
+	public void testDefaultSplit() {
+		float[] weights = new float[] {.25f, .25f, .5f};
+		WeightedDie die = new WeightedDie(weights, 3L) {
+			@Override
+			public float getChiSquareForLargeSample() {
+				return 42f;
+			}
+		};
+		WeightedDie split = die.split();
+		Assert.assertEquals(42f, split.getChiSquareForLargeSample(), 0f);
+		Assert.assertEquals(3, split.getNumberOfSides());
+		Assert.assertEquals(.5, split.getProbability(3), 0);
+	}
+
+	@Test
+	public void testSampleCountsParallel() {
+		float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		long numThrows = 10000000L;
+		long[] counts = new SixSidedWeightedDie(weights, 7L)
+			.sampleCountsParallel(numThrows, new ForkJoinPool(1));
+		long[] sameCounts = new SixSidedWeightedDie(weights, 7L)
+			.sampleCountsParallel(numThrows, new ForkJoinPool(4));
+		Assert.assertTrue(Arrays.equals(counts, sameCounts));
+
+		long totalCount = 0;
+		for (int i = 0; i < 6; i++) {
+			totalCount += counts[i];
+			double actual = (double)counts[i]/numThrows;
+			Assert.assertTrue(Math.abs(actual - weights[i]) <= .01f);
+		}
+		Assert.assertEquals(numThrows, totalCount);
+	}
+
+	@Test
+	public void testSampleDistinct() {
+		float[] weights = new float[] {.05f, .10f, .15f, .2f, .2f, .3f};
+		SixSidedWeightedDie die = new SixSidedWeightedDie(weights);
+		int[] firstCounts = new int[6];
+		int numDraws = 100000;
+		for (int i = 0; i < numDraws; i++) {
+			int[] drawn = die.sampleDistinct(4);
+			Assert.assertEquals(4, drawn.length);
+			boolean[] seen = new boolean[6];
+			for (int side : drawn) {
+				Assert.assertFalse(seen[side-1]);
+				seen[side-1] = true;
+			}
+			firstCounts[drawn[0]-1]++;
+		}
+		// the first side drawn is an ordinary throw
+		for (int i = 0; i < 6; i++) {
+			float actual = (float)firstCounts[i]/numDraws;
+			Assert.assertTrue(Math.abs(actual - weights[i]) <= .01f);
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSampleDistinctTooMany() {
+		new SixSidedWeightedDie(new float[] {.5f, 0f, .5f, 0f, 0f, 0f}).sampleDistinct(3);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testSampleDistinctMoreThanSides() {
+		new SixSidedWeightedDie(new float[] {1f/6, 1f/6, 1f/6, 1f/6, 1f/6, 1f/6})
+			.sampleDistinct(Integer.MAX_VALUE);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testThrowDiceOutOfBounds() {
+		new SixSidedWeightedDie(new float[] {1f/6, 1f/6, 1f/6, 1f/6, 1f/6, 1f/6})
+			.throwDice(new int[10], 5, 6);
+	}
+
 	@Test(expected=IllegalArgumentException.class)
 	public void testArgumentNotNull() {
 		new SixSidedWeightedDie(null);